@@ -0,0 +1,228 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Board-wide scans over primitive byte arrays, one byte per Tile.
+ * <p>
+ * Each scan has a scalar version and a SWAR (SIMD within a register)
+ * version that reads eight Tiles at a time as one long and works on all
+ * eight bytes with a single arithmetic or bitwise operation. The version
+ * is selected once at startup: SWAR unless the system property
+ * "boardScan" is set to "scalar".
+ */
+public class BoardScan {
+    /** whether the SWAR versions of the scans are used */
+    static final boolean USE_SWAR = !"scalar".equals(System.getProperty("boardScan"));
+
+    /** the most dimensions boxSums supports, so that every sum (at most 3^d) fits in a byte */
+    public static final int MAX_BOX_SUM_DIMENSIONS = 5;
+
+    /** reads and writes eight bytes of a byte array as one long */
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    /** the lowest bit of every byte in a long */
+    private static final long LOW_BITS = 0x0101010101010101L;
+
+    /**
+     * Checks that every Tile is either a covered bomb or an uncovered non-bomb
+     * @param codes the PackedBoard codes of the Tiles
+     * @return true if the game is won, and false otherwise
+     */
+    public static boolean isWon(byte[] codes) {
+        return USE_SWAR ? isWonSwar(codes) : isWonScalar(codes);
+    }
+
+    static boolean isWonScalar(byte[] codes) {
+        return isWonScalar(codes, 0);
+    }
+
+    private static boolean isWonScalar(byte[] codes, int from) {
+        for (int i = from; i < codes.length; i++) {
+            if (((codes[i] ^ (codes[i] >>> 2)) & PackedBoard.COVERED_BIT) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isWonSwar(byte[] codes) {
+        int i = 0;
+        for (; i + Long.BYTES <= codes.length; i += Long.BYTES) {
+            long word = (long) LONGS.get(codes, i);
+            // the covered bit of each byte must equal its bomb bit
+            if (((word ^ (word >>> 2)) & LOW_BITS) != 0) {
+                return false;
+            }
+        }
+        return isWonScalar(codes, i);
+    }
+
+    /**
+     * Checks if any bomb has been uncovered
+     * @param codes the PackedBoard codes of the Tiles
+     * @return true if the game is lost, and false otherwise
+     */
+    public static boolean isLost(byte[] codes) {
+        return USE_SWAR ? isLostSwar(codes) : isLostScalar(codes, 0);
+    }
+
+    static boolean isLostScalar(byte[] codes, int from) {
+        for (int i = from; i < codes.length; i++) {
+            if ((codes[i] & (PackedBoard.BOMB_BIT | PackedBoard.COVERED_BIT)) == PackedBoard.BOMB_BIT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isLostSwar(byte[] codes) {
+        int i = 0;
+        for (; i + Long.BYTES <= codes.length; i += Long.BYTES) {
+            long word = (long) LONGS.get(codes, i);
+            // a byte with its bomb bit set and its covered bit (shifted up to the bomb bit) clear
+            if ((word & ~(word << 2) & (LOW_BITS << 2)) != 0) {
+                return true;
+            }
+        }
+        return isLostScalar(codes, i);
+    }
+
+    /**
+     * Counts the covered Tiles that are not flagged
+     * @param codes the PackedBoard codes of the Tiles
+     * @return the number of covered, unflagged Tiles
+     */
+    public static int countCovered(byte[] codes) {
+        return USE_SWAR ? countCoveredSwar(codes) : countCoveredScalar(codes, 0);
+    }
+
+    static int countCoveredScalar(byte[] codes, int from) {
+        int count = 0;
+        for (int i = from; i < codes.length; i++) {
+            if ((codes[i] & (PackedBoard.COVERED_BIT | PackedBoard.FLAGGED_BIT)) == PackedBoard.COVERED_BIT) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    static int countCoveredSwar(byte[] codes) {
+        int count = 0;
+        int i = 0;
+        for (; i + Long.BYTES <= codes.length; i += Long.BYTES) {
+            long word = (long) LONGS.get(codes, i);
+            count += Long.bitCount(word & ~(word >>> 1) & LOW_BITS);
+        }
+        return count + countCoveredScalar(codes, i);
+    }
+
+    /**
+     * Counts the flagged Tiles
+     * @param codes the PackedBoard codes of the Tiles
+     * @return the number of flagged Tiles
+     */
+    public static int countFlagged(byte[] codes) {
+        return USE_SWAR ? countFlaggedSwar(codes) : countFlaggedScalar(codes, 0);
+    }
+
+    static int countFlaggedScalar(byte[] codes, int from) {
+        int count = 0;
+        for (int i = from; i < codes.length; i++) {
+            if ((codes[i] & PackedBoard.FLAGGED_BIT) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    static int countFlaggedSwar(byte[] codes) {
+        int count = 0;
+        int i = 0;
+        for (; i + Long.BYTES <= codes.length; i += Long.BYTES) {
+            long word = (long) LONGS.get(codes, i);
+            count += Long.bitCount(word & (LOW_BITS << 1));
+        }
+        return count + countFlaggedScalar(codes, i);
+    }
+
+    /**
+     * Sums every value over the 3x3x...x3 box centered on it (including itself), one axis at a time.
+     * Summing the bombs (one byte of 0 or 1 per Tile) this way and subtracting each Tile's own bomb gives its number of bomb neighbors
+     * @param values the values to sum, in row-major order
+     * @param dimensions the dimensions of the board
+     * @return the box sums, in row-major order
+     * @throws IllegalArgumentException if there are more than MAX_BOX_SUM_DIMENSIONS dimensions
+     */
+    public static byte[] boxSums(byte[] values, int[] dimensions) {
+        return boxSums(values, dimensions, USE_SWAR);
+    }
+
+    /**
+     * Sums every value over the 3x3x...x3 box centered on it, using the given version of the scan
+     * @param values the values to sum, in row-major order
+     * @param dimensions the dimensions of the board
+     * @param swar whether to use the SWAR version instead of the scalar one
+     * @return the box sums, in row-major order
+     */
+    static byte[] boxSums(byte[] values, int[] dimensions, boolean swar) {
+        if (dimensions.length > MAX_BOX_SUM_DIMENSIONS) {
+            throw new IllegalArgumentException("Box sums are only supported for up to " + MAX_BOX_SUM_DIMENSIONS + " dimensions");
+        }
+        byte[] source = values.clone();
+        byte[] target = new byte[values.length];
+        if (values.length == 0) {
+            return source;
+        }
+
+        int stride = values.length;
+        for (int axis = 0; axis < dimensions.length; axis++) {
+            int length = dimensions[axis];
+            stride /= length;
+            int block = stride * length;
+            for (int start = 0; start < values.length; start += block) {
+                if (length == 1) {
+                    System.arraycopy(source, start, target, start, block);
+                    continue;
+                }
+                // first slice along the axis has no lower neighbor, last slice has no upper neighbor
+                addShifted(source, target, start, start + stride, stride, false, true, swar);
+                addShifted(source, target, start + stride, start + block - stride, stride, true, true, swar);
+                addShifted(source, target, start + block - stride, start + block, stride, true, false, swar);
+            }
+            byte[] swap = source;
+            source = target;
+            target = swap;
+        }
+        return source;
+    }
+
+    /**
+     * Sets target[i] to source[i] plus, if included, source[i - stride] and source[i + stride], for each i in [from, to)
+     */
+    private static void addShifted(byte[] source, byte[] target, int from, int to, int stride, boolean lower, boolean upper, boolean swar) {
+        int i = from;
+        if (swar) {
+            // each byte's sum stays below 256, so no carry crosses into the next byte
+            for (; i + Long.BYTES <= to; i += Long.BYTES) {
+                long sum = (long) LONGS.get(source, i);
+                if (lower) {
+                    sum += (long) LONGS.get(source, i - stride);
+                }
+                if (upper) {
+                    sum += (long) LONGS.get(source, i + stride);
+                }
+                LONGS.set(target, i, sum);
+            }
+        }
+        for (; i < to; i++) {
+            int sum = source[i];
+            if (lower) {
+                sum += source[i - stride];
+            }
+            if (upper) {
+                sum += source[i + stride];
+            }
+            target[i] = (byte) sum;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+import java.util.Random;
+
+/**
+ * Checks the SWAR versions of the BoardScan kernels against their scalar
+ * versions, and the box sums against counting neighbors with getNeighbors,
+ * on random boards whose sizes are not multiples of eight (so the scalar
+ * tails of the SWAR loops are exercised too).
+ * <p>
+ * Run with {@code java BoardScanCheck [boards] [seed]}.
+ */
+public class BoardScanCheck {
+    public static void main(String[] args) {
+        int boards = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        Random random = new Random(seed);
+
+        int checked = 0;
+        while (checked < boards) {
+            int[] dimensions = new int[1 + random.nextInt(BoardScan.MAX_BOX_SUM_DIMENSIONS)];
+            int total = 1;
+            for (int i = 0; i < dimensions.length; i++) {
+                dimensions[i] = 1 + random.nextInt(dimensions.length <= 2 ? 40 : 7);
+                total *= dimensions[i];
+            }
+            if (total % Long.BYTES == 0) {
+                continue;
+            }
+            checkBoard(random, dimensions);
+            checked++;
+        }
+        System.out.println("All board scan checks passed on " + boards + " boards");
+    }
+
+    private static void checkBoard(Random random, int[] dimensions) {
+        Tensor<Tile> board = new Tensor<>(Tile::new, dimensions);
+        int size = board.getDimensionTotal();
+        byte[] bombs = new byte[size];
+        int bombChance = 1 + random.nextInt(6);
+        for (int i = 0; i < size; i++) {
+            if (random.nextInt(bombChance) == 0) {
+                bombs[i] = 1;
+                board.getFlat(i).isBomb = true;
+                for (int[] neighbor : nDMinesweeper.getNeighbors(board.getDimensionIndices(i), dimensions)) {
+                    board.get(neighbor).numNeighbors++;
+                }
+            }
+        }
+
+        byte[] swarSums = BoardScan.boxSums(bombs, dimensions, true);
+        byte[] scalarSums = BoardScan.boxSums(bombs, dimensions, false);
+        for (int i = 0; i < size; i++) {
+            int swarNeighbors = (swarSums[i] & 0xFF) - bombs[i];
+            int scalarNeighbors = (scalarSums[i] & 0xFF) - bombs[i];
+            if (swarNeighbors != board.getFlat(i).numNeighbors || scalarNeighbors != board.getFlat(i).numNeighbors) {
+                fail("boxSums", dimensions);
+            }
+        }
+
+        TileState[] states = TileState.values();
+        for (int round = 0; round < 4; round++) {
+            // the last round leaves the board won, the one before it one Tile away from won
+            for (int i = 0; i < size; i++) {
+                Tile tile = board.getFlat(i);
+                if (round < 2) {
+                    tile.tileState = states[random.nextInt(states.length)];
+                } else {
+                    tile.tileState = tile.isBomb ? (random.nextBoolean() ? TileState.FLAGGED : TileState.COVERED) : TileState.UNCOVERED;
+                }
+            }
+            if (round == 2) {
+                Tile tile = board.getFlat(random.nextInt(size));
+                tile.tileState = tile.isBomb ? TileState.UNCOVERED : TileState.COVERED;
+            }
+
+            byte[] codes = new byte[size];
+            boolean won = true;
+            boolean lost = false;
+            int covered = 0;
+            int flagged = 0;
+            for (int i = 0; i < size; i++) {
+                Tile tile = board.getFlat(i);
+                codes[i] = PackedBoard.encode(tile);
+                won &= tile.isBomb ? tile.tileState != TileState.UNCOVERED : tile.tileState == TileState.UNCOVERED;
+                lost |= tile.isBomb && tile.tileState == TileState.UNCOVERED;
+                covered += tile.tileState == TileState.COVERED ? 1 : 0;
+                flagged += tile.tileState == TileState.FLAGGED ? 1 : 0;
+            }
+
+            if (BoardScan.isWonSwar(codes) != won || BoardScan.isWonScalar(codes) != won) {
+                fail("isWon", dimensions);
+            }
+            if (BoardScan.isLostSwar(codes) != lost || BoardScan.isLostScalar(codes, 0) != lost) {
+                fail("isLost", dimensions);
+            }
+            if (BoardScan.countCoveredSwar(codes) != covered || BoardScan.countCoveredScalar(codes, 0) != covered) {
+                fail("countCovered", dimensions);
+            }
+            if (BoardScan.countFlaggedSwar(codes) != flagged || BoardScan.countFlaggedScalar(codes, 0) != flagged) {
+                fail("countFlagged", dimensions);
+            }
+        }
+    }
+
+    private static void fail(String kernel, int[] dimensions) {
+        throw new IllegalStateException(kernel + " does not match on a board with dimensions " + nDMinesweeper.printInts(dimensions));
+    }
+}
@@ -0,0 +1,245 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A BoardSnapshot is an immutable record of the TileState of every Tile
+ * on a board. Bombs and neighbor counts never change after generation,
+ * so only the states are stored.
+ * <p>
+ * The states are split into fixed-size chunks held in a persistent trie.
+ * A new snapshot made with {@link #with(List, Tensor)} copies only the
+ * chunks (and the trie nodes above them) that the move touched, and shares
+ * every other chunk with the snapshot it was made from. Each snapshot
+ * therefore costs memory proportional to the number of chunks it touched,
+ * not the size of the board.
+ */
+public class BoardSnapshot {
+    /** log2 of the number of Tiles in a chunk */
+    static final int CHUNK_BITS = 6;
+    /** number of Tiles in a chunk */
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    /** log2 of the number of children of an inner trie node */
+    static final int BRANCH_BITS = 5;
+    /** number of children of an inner trie node */
+    static final int BRANCH_SIZE = 1 << BRANCH_BITS;
+
+    /** approximate size in bytes of a chunk (array header plus one byte per Tile) */
+    static final long CHUNK_BYTES = 16 + CHUNK_SIZE;
+    /** approximate size in bytes of an inner trie node (array header plus one reference per child) */
+    static final long NODE_BYTES = 16 + 4L * BRANCH_SIZE;
+
+    private static final TileState[] STATES = TileState.values();
+
+    /** either a byte[] chunk when depth is 0, or an Object[] of children */
+    private final Object root;
+    /** number of inner node levels above the chunks */
+    private final int depth;
+    /** total number of Tiles in the snapshot */
+    private final int size;
+    /** chunks newly allocated when this snapshot was made */
+    private final int allocatedChunks;
+    /** inner trie nodes newly allocated when this snapshot was made */
+    private final int allocatedNodes;
+
+    private BoardSnapshot(Object root, int depth, int size, int allocatedChunks, int allocatedNodes) {
+        this.root = root;
+        this.depth = depth;
+        this.size = size;
+        this.allocatedChunks = allocatedChunks;
+        this.allocatedNodes = allocatedNodes;
+    }
+
+    /**
+     * Creates a snapshot of the current TileState of every Tile on the board
+     * @param board the board to take the snapshot of
+     * @return a snapshot that shares no chunks with any other snapshot
+     */
+    public static BoardSnapshot of(Tensor<Tile> board) {
+        int size = board.getDimensionTotal();
+        int numChunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int depth = 0;
+        for (int capacity = 1; capacity < numChunks; capacity <<= BRANCH_BITS) {
+            depth++;
+        }
+
+        Object[] level = new Object[Math.max(numChunks, 1)];
+        for (int c = 0; c < level.length; c++) {
+            byte[] chunk = new byte[CHUNK_SIZE];
+            int start = c * CHUNK_SIZE;
+            for (int i = start; i < Math.min(start + CHUNK_SIZE, size); i++) {
+                chunk[i - start] = (byte) board.getFlat(i).tileState.ordinal();
+            }
+            level[c] = chunk;
+        }
+        int chunks = level.length;
+
+        int nodes = 0;
+        for (int d = 0; d < depth; d++) {
+            Object[] parents = new Object[(level.length + BRANCH_SIZE - 1) / BRANCH_SIZE];
+            for (int p = 0; p < parents.length; p++) {
+                Object[] node = new Object[BRANCH_SIZE];
+                System.arraycopy(level, p * BRANCH_SIZE, node, 0, Math.min(BRANCH_SIZE, level.length - p * BRANCH_SIZE));
+                parents[p] = node;
+            }
+            nodes += parents.length;
+            level = parents;
+        }
+        return new BoardSnapshot(level[0], depth, size, chunks, nodes);
+    }
+
+    /**
+     * Gets the TileState of the Tile at the given row-major index
+     * @param index the row-major index of the Tile
+     * @return the TileState of the Tile when the snapshot was taken
+     * @throws IllegalArgumentException if the index is out of bounds of the snapshot
+     */
+    public TileState get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IllegalArgumentException("Index is out of bounds of the snapshot");
+        }
+        int chunkIndex = index >>> CHUNK_BITS;
+        Object node = root;
+        for (int d = depth - 1; d >= 0; d--) {
+            node = ((Object[]) node)[(chunkIndex >>> (d * BRANCH_BITS)) & (BRANCH_SIZE - 1)];
+        }
+        return STATES[((byte[]) node)[index & (CHUNK_SIZE - 1)]];
+    }
+
+    /**
+     * Returns a new snapshot equal to this one, except that the Tiles at the given
+     * row-major indices take their current TileState from the board.
+     * Only the chunks containing those Tiles are copied; the rest are shared.
+     * @param changed the row-major indices of the Tiles that changed since this snapshot
+     * @param board the board to read the new TileStates from
+     * @return the new snapshot
+     */
+    public BoardSnapshot with(List<Integer> changed, Tensor<Tile> board) {
+        Set<Object> fresh = Collections.newSetFromMap(new IdentityHashMap<>());
+        int chunks = 0;
+        int nodes = 0;
+
+        Object newRoot;
+        if (depth > 0) {
+            newRoot = ((Object[]) root).clone();
+            nodes++;
+        } else {
+            newRoot = ((byte[]) root).clone();
+            chunks++;
+        }
+        fresh.add(newRoot);
+
+        for (int index : changed) {
+            int chunkIndex = index >>> CHUNK_BITS;
+            Object node = newRoot;
+            for (int d = depth - 1; d >= 0; d--) {
+                Object[] children = (Object[]) node;
+                int slot = (chunkIndex >>> (d * BRANCH_BITS)) & (BRANCH_SIZE - 1);
+                Object child = children[slot];
+                if (!fresh.contains(child)) {
+                    if (d > 0) {
+                        child = ((Object[]) child).clone();
+                        nodes++;
+                    } else {
+                        child = ((byte[]) child).clone();
+                        chunks++;
+                    }
+                    fresh.add(child);
+                    children[slot] = child;
+                }
+                node = child;
+            }
+            ((byte[]) node)[index & (CHUNK_SIZE - 1)] = (byte) board.getFlat(index).tileState.ordinal();
+        }
+        return new BoardSnapshot(newRoot, depth, size, chunks, nodes);
+    }
+
+    /**
+     * Sets the TileState of every Tile on the board to the state recorded in this snapshot.
+     * The board is assumed to currently match the given snapshot, so only chunks that
+     * are not shared between the two snapshots are visited.
+     * @param board the board to restore
+     * @param current a snapshot that the board currently matches, made from the same board
+     * @return the row-major indices of the Tiles whose state was changed
+     */
+    public List<Integer> restoreInto(Tensor<Tile> board, BoardSnapshot current) {
+        List<Integer> changed = new ArrayList<>();
+        restoreNode(board, this.root, current.root, depth, 0, changed);
+        return changed;
+    }
+
+    private void restoreNode(Tensor<Tile> board, Object target, Object current, int level, int firstChunk, List<Integer> changed) {
+        if (target == current) {
+            return;
+        }
+        if (level == 0) {
+            byte[] targetChunk = (byte[]) target;
+            byte[] currentChunk = (byte[]) current;
+            int start = firstChunk * CHUNK_SIZE;
+            for (int i = 0; i < CHUNK_SIZE && start + i < size; i++) {
+                if (targetChunk[i] != currentChunk[i]) {
+                    board.getFlat(start + i).tileState = STATES[targetChunk[i]];
+                    changed.add(start + i);
+                }
+            }
+            return;
+        }
+        Object[] targetChildren = (Object[]) target;
+        Object[] currentChildren = (Object[]) current;
+        int span = 1 << ((level - 1) * BRANCH_BITS);
+        for (int i = 0; i < BRANCH_SIZE; i++) {
+            if (targetChildren[i] != null) {
+                restoreNode(board, targetChildren[i], currentChildren[i], level - 1, firstChunk + i * span, changed);
+            }
+        }
+    }
+
+    /**
+     * Adds every chunk and inner trie node reachable from this snapshot to the given set
+     * @param seen an identity set of the chunks and nodes already counted
+     * @return the approximate number of bytes of the chunks and nodes that were not already in the set
+     */
+    long collectStorage(Set<Object> seen) {
+        return collectNode(root, depth, seen);
+    }
+
+    private static long collectNode(Object node, int level, Set<Object> seen) {
+        if (node == null || !seen.add(node)) {
+            return 0;
+        }
+        if (level == 0) {
+            return CHUNK_BYTES;
+        }
+        long bytes = NODE_BYTES;
+        for (Object child : (Object[]) node) {
+            bytes += collectNode(child, level - 1, seen);
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets the approximate number of bytes newly allocated when this snapshot was made
+     * @return the approximate number of bytes this snapshot does not share with the snapshot it was made from
+     */
+    public long getAllocatedBytes() {
+        return allocatedChunks * CHUNK_BYTES + allocatedNodes * NODE_BYTES;
+    }
+
+    /**
+     * Gets the number of chunks newly allocated when this snapshot was made
+     * @return the number of chunks this snapshot does not share with the snapshot it was made from
+     */
+    public int getAllocatedChunks() {
+        return allocatedChunks;
+    }
+
+    /**
+     * Gets the number of Tiles in the snapshot
+     * @return the number of Tiles
+     */
+    public int getSize() {
+        return size;
+    }
+}
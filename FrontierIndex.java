@@ -0,0 +1,183 @@
+import java.util.Arrays;
+
+/**
+ * A FrontierIndex keeps track of the frontier of a game as Tiles change
+ * state, so it never has to be found by scanning the board:
+ * <ul>
+ * <li> the number frontier, uncovered non-bomb Tiles that still have a covered (unflagged) neighbor
+ * <li> the covered frontier, covered (unflagged) Tiles that have an uncovered non-bomb neighbor
+ * </ul>
+ * For every Tile it counts the covered neighbors and the uncovered
+ * non-bomb neighbors, so a state change only updates the counts and
+ * membership of the Tile and its neighbors.
+ */
+public class FrontierIndex implements TileStateListener {
+    /**
+     * A set of ints in [0, capacity) with constant-time add, remove and
+     * contains, whose members are stored contiguously so they can be
+     * listed in time proportional to the size of the set
+     */
+    private static final class IntSparseSet {
+        private final int[] members;
+        /** position of each int in members, only meaningful for ints in the set */
+        private final int[] positions;
+        private int size;
+
+        IntSparseSet(int capacity) {
+            this.members = new int[capacity];
+            this.positions = new int[capacity];
+        }
+
+        boolean contains(int value) {
+            int position = positions[value];
+            return position < size && members[position] == value;
+        }
+
+        void set(int value, boolean present) {
+            if (present == contains(value)) {
+                return;
+            }
+            if (present) {
+                members[size] = value;
+                positions[value] = size++;
+            } else {
+                int last = members[--size];
+                members[positions[value]] = last;
+                positions[last] = positions[value];
+            }
+        }
+
+        int[] toSortedArray() {
+            int[] result = Arrays.copyOf(members, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+
+    private final Tensor<Tile> board;
+    private final int[] dimensions;
+    /** number of covered (unflagged) neighbors of each Tile */
+    private final int[] coveredNeighbors;
+    /** number of uncovered non-bomb neighbors of each Tile */
+    private final int[] revealedNeighbors;
+    private final IntSparseSet numberFrontier;
+    private final IntSparseSet coveredFrontier;
+
+    /**
+     * Creates the index for the current state of a board.
+     * It has to be added as a listener of the board's PackedBoard to stay up to date
+     * @param board the board to index
+     */
+    public FrontierIndex(Tensor<Tile> board) {
+        this.board = board;
+        this.dimensions = board.getDimensions();
+        int size = board.getDimensionTotal();
+        this.coveredNeighbors = new int[size];
+        this.revealedNeighbors = new int[size];
+        this.numberFrontier = new IntSparseSet(size);
+        this.coveredFrontier = new IntSparseSet(size);
+
+        for (int i = 0; i < size; i++) {
+            Tile tile = board.getFlat(i);
+            boolean covered = tile.tileState == TileState.COVERED;
+            boolean revealed = isRevealed(tile, tile.tileState);
+            if (!covered && !revealed) {
+                continue;
+            }
+            for (int neighbor : nDMinesweeper.getFlatNeighbors(i, dimensions)) {
+                if (covered) {
+                    coveredNeighbors[neighbor]++;
+                }
+                if (revealed) {
+                    revealedNeighbors[neighbor]++;
+                }
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            refresh(i, board.getFlat(i).tileState);
+        }
+    }
+
+    private static boolean isRevealed(Tile tile, TileState state) {
+        return state == TileState.UNCOVERED && !tile.isBomb;
+    }
+
+    @Override
+    public void tileStateChanged(int index, TileState previous, TileState current) {
+        Tile tile = board.getFlat(index);
+        int coveredChange = (current == TileState.COVERED ? 1 : 0) - (previous == TileState.COVERED ? 1 : 0);
+        int revealedChange = (isRevealed(tile, current) ? 1 : 0) - (isRevealed(tile, previous) ? 1 : 0);
+        if (coveredChange != 0 || revealedChange != 0) {
+            for (int neighbor : nDMinesweeper.getFlatNeighbors(index, dimensions)) {
+                coveredNeighbors[neighbor] += coveredChange;
+                revealedNeighbors[neighbor] += revealedChange;
+                refresh(neighbor, board.getFlat(neighbor).tileState);
+            }
+        }
+        refresh(index, current);
+    }
+
+    private void refresh(int index, TileState state) {
+        numberFrontier.set(index, isRevealed(board.getFlat(index), state) && coveredNeighbors[index] > 0);
+        coveredFrontier.set(index, state == TileState.COVERED && revealedNeighbors[index] > 0);
+    }
+
+    /**
+     * Gets the uncovered non-bomb Tiles that still have a covered (unflagged) neighbor
+     * @return their row-major indices, in increasing order
+     */
+    public int[] getNumberFrontier() {
+        return numberFrontier.toSortedArray();
+    }
+
+    /**
+     * Gets the covered (unflagged) Tiles that have an uncovered non-bomb neighbor
+     * @return their row-major indices, in increasing order
+     */
+    public int[] getCoveredFrontier() {
+        return coveredFrontier.toSortedArray();
+    }
+
+    /**
+     * Gets the number of Tiles in the number frontier
+     * @return the size of the number frontier
+     */
+    public int getNumberFrontierSize() {
+        return numberFrontier.size;
+    }
+
+    /**
+     * Gets the number of Tiles in the covered frontier
+     * @return the size of the covered frontier
+     */
+    public int getCoveredFrontierSize() {
+        return coveredFrontier.size;
+    }
+
+    /**
+     * Checks if a Tile is in the number frontier
+     * @param index the row-major index of the Tile
+     * @return true if the Tile is uncovered, not a bomb, and has a covered (unflagged) neighbor
+     */
+    public boolean isNumberFrontier(int index) {
+        return numberFrontier.contains(index);
+    }
+
+    /**
+     * Checks if a Tile is in the covered frontier
+     * @param index the row-major index of the Tile
+     * @return true if the Tile is covered (unflagged) and has an uncovered non-bomb neighbor
+     */
+    public boolean isCoveredFrontier(int index) {
+        return coveredFrontier.contains(index);
+    }
+
+    /**
+     * Gets the number of covered (unflagged) neighbors of a Tile
+     * @param index the row-major index of the Tile
+     * @return the number of covered neighbors
+     */
+    public int getCoveredNeighbors(int index) {
+        return coveredNeighbors[index];
+    }
+}
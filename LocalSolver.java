@@ -0,0 +1,181 @@
+import java.util.Arrays;
+
+/**
+ * A LocalSolver finds the bomb probability of each covered neighbor of an
+ * uncovered number Tile, looking only at the 3x3x...x3 window around it.
+ * <p>
+ * Every way of placing the center's remaining bombs among its covered
+ * neighbors is counted as equally likely, as long as no other number in
+ * the window would see more bombs than it shows. Bombs outside the window
+ * are unknown, so the other numbers only give an upper bound.
+ * <p>
+ * Windows are canonicalized by {@link NeighborhoodPattern} and the results
+ * are kept in a {@link PatternCache}, so each distinct pattern is solved
+ * once no matter how many times or in which orientation it appears.
+ */
+public class LocalSolver {
+    /** above this many placements, the upper bounds are ignored and every covered neighbor gets the same probability */
+    static final long ENUMERATION_LIMIT = 1 << 20;
+
+    private final NeighborhoodPattern pattern;
+    private final PatternCache<double[]> cache;
+
+    /**
+     * Creates a solver for boards with the given number of dimensions
+     * @param numDimensions the number of dimensions of the board
+     * @param cacheCapacity the maximum number of patterns to cache
+     * @throws IllegalArgumentException if numDimensions is greater than NeighborhoodPattern.MAX_DIMENSIONS
+     */
+    public LocalSolver(int numDimensions, int cacheCapacity) {
+        this.pattern = new NeighborhoodPattern(numDimensions);
+        this.cache = new PatternCache<>(cacheCapacity, result -> 16 + 8L * result.length);
+    }
+
+    /**
+     * Gets the bomb probability of every Tile in the window around the given Tile
+     * @param board the board to solve on
+     * @param center the indices of an uncovered number Tile
+     * @return the bomb probability of each window position (see NeighborhoodPattern), -1 for positions that are not covered Tiles,
+     *  or null if the center is not an uncovered number or the window is contradictory
+     */
+    public double[] solve(Tensor<Tile> board, int[] center) {
+        NeighborhoodPattern.Canonical canonical = pattern.canonicalize(pattern.extract(board, center));
+        double[] canonicalResult = cache.get(canonical.key, this::solveWindow);
+        if (canonicalResult.length == 0) {
+            return null;
+        }
+        double[] result = new double[canonicalResult.length];
+        for (int p = 0; p < result.length; p++) {
+            result[canonical.symmetry[p]] = canonicalResult[p];
+        }
+        return result;
+    }
+
+    /**
+     * Solves a (canonical) window
+     * @param window the cell codes of the window
+     * @return the bomb probability of each window position, -1 for positions that are not covered,
+     *  or an empty array if the window cannot be solved (so that the failure is cached as well)
+     */
+    private double[] solveWindow(byte[] window) {
+        int center = pattern.getCenter();
+        if (window[center] < NeighborhoodPattern.NUMBER) {
+            return new double[0];
+        }
+
+        int[] covered = new int[window.length];
+        int numCovered = 0;
+        int flagged = 0;
+        for (int q : pattern.getWindowNeighbors(center)) {
+            if (window[q] == NeighborhoodPattern.COVERED) {
+                covered[numCovered++] = q;
+            } else if (window[q] == NeighborhoodPattern.FLAGGED) {
+                flagged++;
+            }
+        }
+        int remaining = window[center] - NeighborhoodPattern.NUMBER - flagged;
+        if (remaining < 0 || remaining > numCovered) {
+            return new double[0];
+        }
+
+        // the remaining bombs each other number in the window may still see
+        int[] capacity = new int[window.length];
+        for (int p = 0; p < window.length; p++) {
+            capacity[p] = Integer.MAX_VALUE;
+            if (p != center && window[p] >= NeighborhoodPattern.NUMBER) {
+                capacity[p] = window[p] - NeighborhoodPattern.NUMBER;
+                for (int q : pattern.getWindowNeighbors(p)) {
+                    if (window[q] == NeighborhoodPattern.FLAGGED) {
+                        capacity[p]--;
+                    }
+                }
+            }
+        }
+
+        double[] result = new double[window.length];
+        Arrays.fill(result, -1);
+        for (int i = 0; i < numCovered; i++) {
+            result[covered[i]] = (double) remaining / numCovered;
+        }
+        if (binomial(numCovered, remaining) > ENUMERATION_LIMIT) {
+            return result;
+        }
+
+        long[] hits = new long[numCovered];
+        long total = enumerate(covered, numCovered, 0, remaining, capacity, new boolean[numCovered], hits);
+        if (total == 0) {
+            return new double[0];
+        }
+        for (int i = 0; i < numCovered; i++) {
+            result[covered[i]] = (double) hits[i] / total;
+        }
+        return result;
+    }
+
+    /**
+     * Counts the placements of the remaining bombs among covered[next..] that respect every capacity,
+     * adding one to hits[i] for each placement that puts a bomb on covered[i]
+     * @return the number of valid placements
+     */
+    private long enumerate(int[] covered, int numCovered, int next, int remaining,
+                           int[] capacity, boolean[] placed, long[] hits) {
+        if (remaining == 0) {
+            for (int i = 0; i < next; i++) {
+                if (placed[i]) {
+                    hits[i]++;
+                }
+            }
+            return 1;
+        }
+        if (numCovered - next < remaining) {
+            return 0;
+        }
+
+        long total = 0;
+        int[] neighbors = pattern.getWindowNeighbors(covered[next]);
+        boolean fits = true;
+        for (int q : neighbors) {
+            fits &= capacity[q] > 0;
+        }
+        if (fits) {
+            for (int q : neighbors) {
+                capacity[q]--;
+            }
+            placed[next] = true;
+            total += enumerate(covered, numCovered, next + 1, remaining - 1, capacity, placed, hits);
+            placed[next] = false;
+            for (int q : neighbors) {
+                capacity[q]++;
+            }
+        }
+        total += enumerate(covered, numCovered, next + 1, remaining, capacity, placed, hits);
+        return total;
+    }
+
+    /**
+     * Gets n choose k, stopping early once it exceeds ENUMERATION_LIMIT
+     */
+    private static long binomial(int n, int k) {
+        long result = 1;
+        for (int i = 1; i <= k && result <= ENUMERATION_LIMIT; i++) {
+            result = result * (n - k + i) / i;
+        }
+        return result;
+    }
+
+    /**
+     * Gets the description of the window the solver works on
+     * @return the neighborhood pattern
+     */
+    public NeighborhoodPattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Gets the cache of solved patterns, for its metrics
+     * @return the pattern cache
+     */
+    public PatternCache<double[]> getCache() {
+        return cache;
+    }
+}
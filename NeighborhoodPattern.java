@@ -0,0 +1,271 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A NeighborhoodPattern describes the 3x3x...x3 window of Tiles centered on
+ * a Tile of a board with a certain number of dimensions. Each Tile in the
+ * window is encoded as a single cell code (see {@link #extract}), with
+ * window positions in row-major order of their offsets from the center.
+ * <p>
+ * The same local pattern shows up rotated and mirrored all over a board,
+ * so patterns are canonicalized under the symmetries of the grid: every
+ * permutation of the axes combined with every reflection of each axis
+ * (2^d * d! symmetries in d dimensions). The canonical form is the
+ * symmetric image with the smallest Zobrist hash.
+ */
+public class NeighborhoodPattern {
+    /** code for a window position outside of the board */
+    public static final byte OUT_OF_BOUNDS = 0;
+    /** code for a covered Tile */
+    public static final byte COVERED = 1;
+    /** code for a flagged Tile, or an uncovered bomb (both are known bombs) */
+    public static final byte FLAGGED = 2;
+    /** code for an uncovered Tile with zero bomb neighbors. A Tile with k bomb neighbors has code NUMBER + k */
+    public static final byte NUMBER = 3;
+
+    /** the largest number of dimensions supported, so every cell code fits in a byte */
+    public static final int MAX_DIMENSIONS = 4;
+
+    private final int numDimensions;
+    /** number of positions in the window, 3^numDimensions */
+    private final int windowSize;
+    /** offsets from the center for each window position */
+    private final int[][] offsets;
+    /** for each symmetry, the window position each canonical position is read from */
+    private final int[][] symmetries;
+    /** for each window position, the window positions neighboring it */
+    private final int[][] windowNeighbors;
+
+    /**
+     * Creates the pattern description for boards with the given number of dimensions
+     * @param numDimensions the number of dimensions of the board
+     * @throws IllegalArgumentException if numDimensions is negative or greater than MAX_DIMENSIONS
+     */
+    public NeighborhoodPattern(int numDimensions) {
+        if (numDimensions < 0 || numDimensions > MAX_DIMENSIONS) {
+            throw new IllegalArgumentException("Patterns are only supported for up to " + MAX_DIMENSIONS + " dimensions");
+        }
+        this.numDimensions = numDimensions;
+        int size = 1;
+        for (int i = 0; i < numDimensions; i++) {
+            size *= 3;
+        }
+        this.windowSize = size;
+
+        this.offsets = new int[windowSize][];
+        for (int p = 0; p < windowSize; p++) {
+            offsets[p] = positionOffsets(p);
+        }
+
+        List<int[]> transforms = new ArrayList<>();
+        for (int[] permutation : permutations(numDimensions)) {
+            for (int reflections = 0; reflections < 1 << numDimensions; reflections++) {
+                int[] map = new int[windowSize];
+                for (int p = 0; p < windowSize; p++) {
+                    int[] moved = new int[numDimensions];
+                    for (int i = 0; i < numDimensions; i++) {
+                        int sign = (reflections >> i & 1) == 1 ? -1 : 1;
+                        moved[i] = sign * offsets[p][permutation[i]];
+                    }
+                    map[p] = positionOf(moved);
+                }
+                transforms.add(map);
+            }
+        }
+        this.symmetries = transforms.toArray(new int[0][]);
+
+        this.windowNeighbors = new int[windowSize][];
+        for (int p = 0; p < windowSize; p++) {
+            List<Integer> neighbors = new ArrayList<>();
+            for (int q = 0; q < windowSize; q++) {
+                if (q != p && nDMinesweeper.areNeighbors(offsets[p], offsets[q])) {
+                    neighbors.add(q);
+                }
+            }
+            windowNeighbors[p] = neighbors.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Result of canonicalizing a pattern
+     */
+    public static final class Canonical {
+        /** the cache key of the canonical pattern */
+        public final PatternCache.Key key;
+        /** the window position of the original pattern that each canonical position was read from */
+        public final int[] symmetry;
+
+        Canonical(PatternCache.Key key, int[] symmetry) {
+            this.key = key;
+            this.symmetry = symmetry;
+        }
+    }
+
+    /**
+     * Reads the window of cell codes centered on the given Tile
+     * @param board the board to read the window from
+     * @param center the indices of the center Tile
+     * @return the cell codes of the window in row-major order of offsets
+     */
+    public byte[] extract(Tensor<Tile> board, int[] center) {
+        int[] dimensions = board.getDimensions();
+        byte[] window = new byte[windowSize];
+        int[] indices = new int[numDimensions];
+        for (int p = 0; p < windowSize; p++) {
+            for (int i = 0; i < numDimensions; i++) {
+                indices[i] = center[i] + offsets[p][i];
+            }
+            if (!nDMinesweeper.isInBounds(indices, dimensions)) {
+                window[p] = OUT_OF_BOUNDS;
+                continue;
+            }
+            Tile tile = board.get(indices);
+            switch (tile.tileState) {
+                case COVERED:
+                    window[p] = COVERED;
+                    break;
+                case FLAGGED:
+                    window[p] = FLAGGED;
+                    break;
+                case UNCOVERED:
+                    window[p] = tile.isBomb ? FLAGGED : (byte) (NUMBER + tile.numNeighbors);
+                    break;
+            }
+        }
+        return window;
+    }
+
+    /**
+     * Finds the canonical form of a window under the symmetries of the grid
+     * @param window the cell codes of the window
+     * @return the canonical key, and the symmetry that maps the window onto it
+     */
+    public Canonical canonicalize(byte[] window) {
+        int[] best = null;
+        long bestHash = 0;
+        for (int[] symmetry : symmetries) {
+            long hash = 0;
+            for (int p = 0; p < windowSize; p++) {
+                hash ^= zobrist(p, window[symmetry[p]]);
+            }
+            if (best == null || hash < bestHash || (hash == bestHash && compareImages(window, symmetry, best) < 0)) {
+                best = symmetry;
+                bestHash = hash;
+            }
+        }
+        byte[] cells = new byte[windowSize];
+        for (int p = 0; p < windowSize; p++) {
+            cells[p] = window[best[p]];
+        }
+        return new Canonical(new PatternCache.Key(cells, bestHash), best);
+    }
+
+    private int compareImages(byte[] window, int[] first, int[] second) {
+        for (int p = 0; p < windowSize; p++) {
+            int cmp = Byte.compare(window[first[p]], window[second[p]]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the Zobrist key of a cell code at a window position.
+     * Keys are derived from the position and code with the SplitMix64 finalizer, so no table is stored
+     * @param position the window position
+     * @param code the cell code
+     * @return a pseudo-random 64-bit key
+     */
+    static long zobrist(int position, byte code) {
+        long z = ((long) position << 8 | (code & 0xFF)) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Gets the window position of the given offsets from the center
+     * @param offsets offsets from the center, each -1, 0 or 1
+     * @return the window position
+     */
+    public int positionOf(int[] offsets) {
+        int position = 0;
+        for (int i = 0; i < numDimensions; i++) {
+            position = position * 3 + offsets[i] + 1;
+        }
+        return position;
+    }
+
+    private int[] positionOffsets(int position) {
+        int[] result = new int[numDimensions];
+        for (int i = numDimensions - 1; i >= 0; i--) {
+            result[i] = position % 3 - 1;
+            position /= 3;
+        }
+        return result;
+    }
+
+    private static List<int[]> permutations(int n) {
+        List<int[]> result = new ArrayList<>();
+        permute(new int[n], new boolean[n], 0, result);
+        return result;
+    }
+
+    private static void permute(int[] current, boolean[] used, int next, List<int[]> result) {
+        if (next == current.length) {
+            result.add(current.clone());
+            return;
+        }
+        for (int i = 0; i < current.length; i++) {
+            if (!used[i]) {
+                used[i] = true;
+                current[next] = i;
+                permute(current, used, next + 1, result);
+                used[i] = false;
+            }
+        }
+    }
+
+    /**
+     * Gets the offsets from the center of a window position
+     * @param position the window position
+     * @return a clone of the offsets, each -1, 0 or 1
+     */
+    public int[] getOffsets(int position) {
+        return offsets[position].clone();
+    }
+
+    /**
+     * Gets the window positions neighboring a window position
+     * @param position the window position
+     * @return the neighboring window positions, which must not be modified
+     */
+    int[] getWindowNeighbors(int position) {
+        return windowNeighbors[position];
+    }
+
+    /**
+     * Gets the window position of the center Tile
+     * @return the center window position
+     */
+    public int getCenter() {
+        return windowSize / 2;
+    }
+
+    /**
+     * Gets the number of positions in the window
+     * @return 3^d for d dimensions
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Gets the number of symmetries patterns are canonicalized under
+     * @return 2^d * d! for d dimensions
+     */
+    public int getSymmetryCount() {
+        return symmetries.length;
+    }
+}
@@ -0,0 +1,129 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A PackedBoard mirrors the state of every Tile on a board as a single byte,
+ * in row-major order, so board-wide scans read a flat primitive array
+ * instead of following a reference per Tile (see {@link BoardScan}).
+ * <p>
+ * Bombs never change after generation, so the mirror only has to be told
+ * which Tiles changed state after each move. Since every state change goes
+ * through the mirror, it also passes the changes on to any listeners.
+ */
+public class PackedBoard {
+    /** set for covered Tiles, including flagged ones */
+    static final byte COVERED_BIT = 1;
+    /** set for flagged Tiles */
+    static final byte FLAGGED_BIT = 2;
+    /** set for bombs */
+    static final byte BOMB_BIT = 4;
+
+    private final byte[] codes;
+    private final List<TileStateListener> listeners = new ArrayList<>();
+
+    private PackedBoard(byte[] codes) {
+        this.codes = codes;
+    }
+
+    /**
+     * Creates the mirror of a board
+     * @param board the board to mirror
+     * @return the mirror
+     */
+    public static PackedBoard of(Tensor<Tile> board) {
+        byte[] codes = new byte[board.getDimensionTotal()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = encode(board.getFlat(i));
+        }
+        return new PackedBoard(codes);
+    }
+
+    /**
+     * Gets the packed code of a Tile
+     * @param tile the Tile to encode
+     * @return the code, a combination of COVERED_BIT, FLAGGED_BIT and BOMB_BIT
+     */
+    static byte encode(Tile tile) {
+        byte code = tile.isBomb ? BOMB_BIT : 0;
+        switch (tile.tileState) {
+            case COVERED:
+                code |= COVERED_BIT;
+                break;
+            case FLAGGED:
+                code |= COVERED_BIT | FLAGGED_BIT;
+                break;
+            case UNCOVERED:
+                break;
+        }
+        return code;
+    }
+
+    /**
+     * Gets the TileState a packed code represents
+     * @param code the packed code
+     * @return the TileState of the code
+     */
+    static TileState decode(byte code) {
+        if ((code & FLAGGED_BIT) != 0) {
+            return TileState.FLAGGED;
+        }
+        return (code & COVERED_BIT) != 0 ? TileState.COVERED : TileState.UNCOVERED;
+    }
+
+    /**
+     * Adds a listener to be told about every state change passed to update
+     * @param listener the listener to add
+     */
+    public void addListener(TileStateListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Copies the state of the given Tiles from the board into the mirror, telling the listeners about each Tile whose state changed
+     * @param board the board being mirrored
+     * @param changed the row-major indices of the Tiles whose state changed
+     */
+    public void update(Tensor<Tile> board, List<Integer> changed) {
+        for (int index : changed) {
+            byte previous = codes[index];
+            codes[index] = encode(board.getFlat(index));
+            if (codes[index] != previous) {
+                for (TileStateListener listener : listeners) {
+                    listener.tileStateChanged(index, decode(previous), decode(codes[index]));
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if the board is won (all bombs are covered or flagged, and all non-bomb tiles are uncovered)
+     * @return true if the game is won, and false otherwise
+     */
+    public boolean isWon() {
+        return BoardScan.isWon(codes);
+    }
+
+    /**
+     * Checks if the board is lost (a bomb is uncovered)
+     * @return true if the game is lost, and false otherwise
+     */
+    public boolean isLost() {
+        return BoardScan.isLost(codes);
+    }
+
+    /**
+     * Counts the covered Tiles that are not flagged
+     * @return the number of covered, unflagged Tiles
+     */
+    public int countCovered() {
+        return BoardScan.countCovered(codes);
+    }
+
+    /**
+     * Counts the flagged Tiles
+     * @return the number of flagged Tiles
+     */
+    public int countFlagged() {
+        return BoardScan.countFlagged(codes);
+    }
+}
@@ -0,0 +1,165 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * A PatternCache is a bounded map from canonical neighborhood patterns
+ * (see {@link NeighborhoodPattern}) to the result of solving them. When the
+ * cache is full, the least recently used pattern is evicted.
+ * <p>
+ * The cache counts hits, misses and evictions, and estimates the memory
+ * it is holding, so its size can be tuned for batch analysis.
+ * @param <V> the type of the solved result
+ */
+public class PatternCache<V> {
+    /** approximate size in bytes of a cache entry, not counting the pattern or the value */
+    static final long ENTRY_OVERHEAD_BYTES = 80;
+
+    /**
+     * A canonical pattern along with its precomputed Zobrist hash
+     */
+    public static final class Key {
+        private final byte[] cells;
+        private final long hash;
+
+        /**
+         * Creates a key for a canonical pattern
+         * @param cells the cell codes of the canonical pattern. Not copied, so must not be modified afterwards
+         * @param hash the Zobrist hash of the pattern
+         */
+        public Key(byte[] cells, long hash) {
+            this.cells = cells;
+            this.hash = hash;
+        }
+
+        /**
+         * Gets the cell codes of the canonical pattern
+         * @return the cell codes, which must not be modified
+         */
+        public byte[] getCells() {
+            return cells;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && Arrays.equals(cells, other.cells);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+    }
+
+    private final int capacity;
+    private final ToLongFunction<V> valueBytes;
+    private final LinkedHashMap<Key, V> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long memoryBytes;
+
+    /**
+     * Creates an empty cache
+     * @param capacity the maximum number of patterns to hold
+     * @param valueBytes a function estimating the size in bytes of a result
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public PatternCache(int capacity, ToLongFunction<V> valueBytes) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.valueBytes = valueBytes;
+        this.entries = new LinkedHashMap<Key, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, V> eldest) {
+                if (size() <= PatternCache.this.capacity) {
+                    return false;
+                }
+                evictions++;
+                memoryBytes -= entryBytes(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Gets the result for the given pattern, solving and storing it if it is not cached
+     * @param key the canonical pattern
+     * @param solver the function to solve the pattern with on a miss
+     * @return the (possibly cached) result
+     */
+    public V get(Key key, Function<byte[], V> solver) {
+        V value = entries.get(key);
+        if (value != null) {
+            hits++;
+            return value;
+        }
+        misses++;
+        value = solver.apply(key.getCells());
+        memoryBytes += entryBytes(key, value);
+        entries.put(key, value);
+        return value;
+    }
+
+    private long entryBytes(Key key, V value) {
+        return ENTRY_OVERHEAD_BYTES + 16 + key.getCells().length + valueBytes.applyAsLong(value);
+    }
+
+    /**
+     * Gets the number of lookups that found a cached result
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that had to solve the pattern
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the fraction of lookups that found a cached result
+     * @return the hit rate, or zero if there have been no lookups
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Gets the number of patterns evicted to stay within the capacity
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Gets the number of patterns currently cached
+     * @return the number of cached patterns
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the approximate number of bytes held by the cached patterns and results
+     * @return the approximate memory used
+     */
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+}
@@ -0,0 +1,159 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A SnapshotHistory is a tree of BoardSnapshots, one per move, that supports
+ * undo, redo and branching. Undoing a move and then making a different move
+ * starts a new branch instead of discarding the old one, so a guess can be
+ * explored and abandoned without losing the original line of play.
+ */
+public class SnapshotHistory {
+    private static class Node {
+        final BoardSnapshot snapshot;
+        final Node parent;
+        final List<Node> children = new ArrayList<>();
+        /** the child that redo moves to, the most recently visited one */
+        Node redoChild;
+
+        Node(BoardSnapshot snapshot, Node parent) {
+            this.snapshot = snapshot;
+            this.parent = parent;
+        }
+    }
+
+    private final Node root;
+    private Node current;
+    private int totalSnapshots;
+
+    /**
+     * Creates a new history starting at the given snapshot
+     * @param initial the snapshot of the board before any moves
+     */
+    public SnapshotHistory(BoardSnapshot initial) {
+        this.root = new Node(initial, null);
+        this.current = root;
+        this.totalSnapshots = 1;
+    }
+
+    /**
+     * Gets the snapshot the board currently matches
+     * @return the current snapshot
+     */
+    public BoardSnapshot current() {
+        return current.snapshot;
+    }
+
+    /**
+     * Records a move as a new child of the current snapshot and moves to it
+     * @param next the snapshot of the board after the move
+     */
+    public void record(BoardSnapshot next) {
+        Node child = new Node(next, current);
+        current.children.add(child);
+        current.redoChild = child;
+        current = child;
+        totalSnapshots++;
+    }
+
+    /**
+     * Moves back to the snapshot before the current one, restoring the board to it
+     * @param board the board to restore
+     * @return the row-major indices of the Tiles whose state was changed, or null if there was no move to undo
+     */
+    public List<Integer> undo(Tensor<Tile> board) {
+        if (current.parent == null) {
+            return null;
+        }
+        return moveTo(current.parent, board);
+    }
+
+    /**
+     * Moves forward to the most recently visited child of the current snapshot, restoring the board to it
+     * @param board the board to restore
+     * @return the row-major indices of the Tiles whose state was changed, or null if there was no move to redo
+     */
+    public List<Integer> redo(Tensor<Tile> board) {
+        if (current.redoChild == null) {
+            return null;
+        }
+        return moveTo(current.redoChild, board);
+    }
+
+    /**
+     * Gets the number of branches (moves that were made) from the current snapshot
+     * @return the number of children of the current snapshot
+     */
+    public int getBranchCount() {
+        return current.children.size();
+    }
+
+    /**
+     * Moves forward along the given branch of the current snapshot, restoring the board to it
+     * @param branch the index of the branch, in the order the branches were made
+     * @param board the board to restore
+     * @return the row-major indices of the Tiles whose state was changed
+     * @throws IllegalArgumentException if there is no such branch
+     */
+    public List<Integer> switchBranch(int branch, Tensor<Tile> board) {
+        if (branch < 0 || branch >= current.children.size()) {
+            throw new IllegalArgumentException("No branch " + branch + " from the current move");
+        }
+        Node child = current.children.get(branch);
+        current.redoChild = child;
+        return moveTo(child, board);
+    }
+
+    private List<Integer> moveTo(Node target, Tensor<Tile> board) {
+        List<Integer> changed = target.snapshot.restoreInto(board, current.snapshot);
+        current = target;
+        return changed;
+    }
+
+    /**
+     * Gets a human-readable report of the memory used by the snapshot chain from the
+     * first snapshot to the current one, and by the whole history
+     * @return the lines of the report
+     */
+    public String[] memoryReport() {
+        List<Node> chain = new ArrayList<>();
+        for (Node n = current; n != null; n = n.parent) {
+            chain.add(n);
+        }
+        Collections.reverse(chain);
+
+        List<String> lines = new ArrayList<>();
+        long chainBytes = 0;
+        for (int i = 0; i < chain.size(); i++) {
+            BoardSnapshot snapshot = chain.get(i).snapshot;
+            chainBytes += snapshot.getAllocatedBytes();
+            lines.add("Move " + i + ": " + snapshot.getAllocatedChunks() + " chunks, " + snapshot.getAllocatedBytes() + " bytes");
+        }
+
+        // the first snapshot shares nothing, so it is what a full copy of the board costs
+        long fullCopyBytes = (long) totalSnapshots * root.snapshot.getAllocatedBytes();
+        lines.add("Current chain: " + chain.size() + " snapshots, " + chainBytes + " bytes");
+        lines.add("Whole history: " + totalSnapshots + " snapshots, " + collectStorage(root) + " bytes"
+            + " (" + fullCopyBytes + " bytes if every snapshot were a full copy)");
+        return lines.toArray(new String[0]);
+    }
+
+    /**
+     * Gets the approximate number of bytes of all the distinct chunks and nodes in the history below the given node
+     */
+    private static long collectStorage(Node root) {
+        Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        long bytes = 0;
+        ArrayDeque<Node> toVisit = new ArrayDeque<>();
+        toVisit.push(root);
+        while (!toVisit.isEmpty()) {
+            Node node = toVisit.pop();
+            bytes += node.snapshot.collectStorage(seen);
+            node.children.forEach(toVisit::push);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,242 @@
+/**
+ * A SummaryPyramid counts the covered, flagged and uncovered Tiles in blocks
+ * of 2^level Tiles along every dimension, for every level from 1 up to the
+ * level where a single block covers the whole board. Level 0 is the board
+ * itself.
+ * <p>
+ * A state change updates one block per level, and a count over a box of
+ * Tiles adds up the largest blocks that fit inside it, so neither has to
+ * scan the board. The coarse levels also give a zoomed-out density map of
+ * boards too large to print Tile by Tile.
+ */
+public class SummaryPyramid implements TileStateListener {
+    /** shading for the density map, from fully uncovered to fully covered */
+    static final String DENSITY_RAMP = " .:-=+*#%@";
+
+    private final Tensor<Tile> board;
+    private final int[] dimensions;
+    /** dimensions (in blocks) of each level */
+    private final int[][] levelDimensions;
+    /**
+     * counts of each level, three per block in row-major order of blocks,
+     * indexed by block * 3 + TileState.ordinal(). Level 0 is not stored
+     */
+    private final int[][] counts;
+
+    /**
+     * Creates the pyramid for the current state of a board.
+     * It has to be added as a listener of the board's PackedBoard to stay up to date
+     * @param board the board to summarize
+     */
+    public SummaryPyramid(Tensor<Tile> board) {
+        this.board = board;
+        this.dimensions = board.getDimensions();
+        int levels = 0;
+        for (int dimension : dimensions) {
+            while ((1 << levels) < dimension) {
+                levels++;
+            }
+        }
+
+        this.levelDimensions = new int[levels + 1][];
+        this.counts = new int[levels + 1][];
+        levelDimensions[0] = dimensions;
+        for (int level = 1; level <= levels; level++) {
+            int[] blocks = new int[dimensions.length];
+            int total = 1;
+            for (int i = 0; i < dimensions.length; i++) {
+                blocks[i] = (dimensions[i] + (1 << level) - 1) >> level;
+                total *= blocks[i];
+            }
+            levelDimensions[level] = blocks;
+            counts[level] = new int[total * 3];
+        }
+
+        if (levels == 0 || board.getDimensionTotal() == 0) {
+            return;
+        }
+        int[] indices = new int[dimensions.length];
+        for (int i = 0; i < board.getDimensionTotal(); i++) {
+            counts[1][blockIndex(indices, 1) * 3 + board.getFlat(i).tileState.ordinal()]++;
+            increment(indices, dimensions);
+        }
+        for (int level = 2; level <= levels; level++) {
+            int[] children = levelDimensions[level - 1];
+            int[] coords = new int[dimensions.length];
+            for (int child = 0; child < counts[level - 1].length / 3; child++) {
+                int parent = blockIndex(coords, level, level - 1);
+                for (int state = 0; state < 3; state++) {
+                    counts[level][parent * 3 + state] += counts[level - 1][child * 3 + state];
+                }
+                increment(coords, children);
+            }
+        }
+    }
+
+    @Override
+    public void tileStateChanged(int index, TileState previous, TileState current) {
+        int[] indices = board.getDimensionIndices(index);
+        for (int level = 1; level < counts.length; level++) {
+            int block = blockIndex(indices, level);
+            counts[level][block * 3 + previous.ordinal()]--;
+            counts[level][block * 3 + current.ordinal()]++;
+        }
+    }
+
+    /**
+     * Counts the Tiles in a box of the board that are in the given state.
+     * A box reaching outside the board is clipped to it, and a box that is empty
+     * (from is not below to along some dimension) or entirely outside the board counts zero
+     * @param state the state to count
+     * @param from the lowest indices of the box (inclusive)
+     * @param to the highest indices of the box (exclusive)
+     * @return the number of Tiles in the box in that state
+     * @throws IllegalArgumentException if the number of indices does not equal the number of dimensions of the board
+     */
+    public int count(TileState state, int[] from, int[] to) {
+        if (from.length != dimensions.length || to.length != dimensions.length) {
+            throw new IllegalArgumentException("Number of dimensions does not equal dimensions of board");
+        }
+        if (board.getDimensionTotal() == 0) {
+            return 0;
+        }
+        return countBlock(state, from, to, counts.length - 1, new int[dimensions.length]);
+    }
+
+    private int countBlock(TileState state, int[] from, int[] to, int level, int[] block) {
+        boolean inside = true;
+        for (int i = 0; i < dimensions.length; i++) {
+            int low = block[i] << level;
+            int high = Math.min((block[i] + 1) << level, dimensions[i]);
+            if (high <= from[i] || low >= to[i]) {
+                return 0;
+            }
+            inside &= from[i] <= low && high <= to[i];
+        }
+        if (level == 0) {
+            return board.get(block).tileState == state ? 1 : 0;
+        }
+        if (inside) {
+            return counts[level][blockIndex(block, level, level) * 3 + state.ordinal()];
+        }
+
+        // split into the 2^d child blocks one level down
+        int total = 0;
+        int[] child = new int[dimensions.length];
+        for (int corner = 0; corner < 1 << dimensions.length; corner++) {
+            boolean exists = true;
+            for (int i = 0; i < dimensions.length; i++) {
+                child[i] = block[i] * 2 + (corner >> i & 1);
+                exists &= child[i] < levelDimensions[level - 1][i];
+            }
+            if (exists) {
+                total += countBlock(state, from, to, level - 1, child);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Gets the row-major index within a level of the block containing the given Tile
+     */
+    private int blockIndex(int[] indices, int level) {
+        return blockIndex(indices, level, 0);
+    }
+
+    /**
+     * Gets the row-major index within a level of the block containing the given block of a lower level
+     * @param coords the coordinates of the block in the lower level
+     * @param level the level to get the index in
+     * @param coordsLevel the level of the coordinates
+     */
+    private int blockIndex(int[] coords, int level, int coordsLevel) {
+        int index = 0;
+        for (int i = 0; i < dimensions.length; i++) {
+            index = index * levelDimensions[level][i] + (coords[i] >> (level - coordsLevel));
+        }
+        return index;
+    }
+
+    private static void increment(int[] coords, int[] dimensions) {
+        for (int i = dimensions.length - 1; i >= 0; i--) {
+            if (++coords[i] < dimensions[i]) {
+                return;
+            }
+            coords[i] = 0;
+        }
+    }
+
+    /**
+     * Gets a map of the board where each character is a block of the finest level that is at most
+     * maxWidth blocks wide and maxHeight blocks tall in the last two dimensions, shaded by the fraction of its
+     * Tiles that are covered or flagged. Blocks along the other dimensions are added together
+     * @param maxWidth the maximum width of the map in characters
+     * @param maxHeight the maximum height of the map in lines
+     * @return the lines of the map, starting with a line describing the block size
+     */
+    public String[] densityMap(int maxWidth, int maxHeight) {
+        int d = dimensions.length;
+        int level = 0;
+        while (level < counts.length - 1
+            && ((d >= 1 && levelDimensions[level][d - 1] > maxWidth) || (d >= 2 && levelDimensions[level][d - 2] > maxHeight))) {
+            level++;
+        }
+
+        int width = d >= 1 ? levelDimensions[level][d - 1] : 1;
+        int height = d >= 2 ? levelDimensions[level][d - 2] : 1;
+        long[] hidden = new long[width * height];
+        long[] total = new long[width * height];
+        int blocks = 1;
+        for (int size : levelDimensions[level]) {
+            blocks *= size;
+        }
+        int[] coords = new int[d];
+        for (int block = 0; block < blocks; block++) {
+            int cell = (d >= 2 ? coords[d - 2] * width : 0) + (d >= 1 ? coords[d - 1] : 0);
+            for (TileState state : TileState.values()) {
+                int count = level == 0
+                    ? (board.getFlat(block).tileState == state ? 1 : 0)
+                    : counts[level][block * 3 + state.ordinal()];
+                total[cell] += count;
+                if (state != TileState.UNCOVERED) {
+                    hidden[cell] += count;
+                }
+            }
+            increment(coords, levelDimensions[level]);
+        }
+
+        String[] lines = new String[height + 1];
+        lines[0] = "Each character is a block of " + (1 << level) + " tiles per side ('"
+            + DENSITY_RAMP.charAt(0) + "' uncovered to '" + DENSITY_RAMP.charAt(DENSITY_RAMP.length() - 1) + "' covered)";
+        for (int row = 0; row < height; row++) {
+            StringBuilder line = new StringBuilder();
+            for (int column = 0; column < width; column++) {
+                int cell = row * width + column;
+                int shade = total[cell] == 0 ? 0 : (int) Math.round((double) hidden[cell] / total[cell] * (DENSITY_RAMP.length() - 1));
+                line.append(DENSITY_RAMP.charAt(shade));
+            }
+            lines[row + 1] = line.toString();
+        }
+        return lines;
+    }
+
+    /**
+     * Gets the number of levels above the board itself
+     * @return the number of stored levels
+     */
+    public int getLevels() {
+        return counts.length - 1;
+    }
+
+    /**
+     * Gets the approximate number of bytes held by the pyramid
+     * @return the size of the count arrays in bytes
+     */
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (int level = 1; level < counts.length; level++) {
+            bytes += 16 + 4L * counts[level].length;
+        }
+        return bytes;
+    }
+}
@@ -116,6 +116,26 @@ public class Tensor<T> {
         members.set(index, value);
     }
 
+    /**
+     * Gets the element in the Tensor at the given row-major index
+     * @param index the row-major index of the requested element
+     * @return the requested element
+     * @throws IndexOutOfBoundsException if the index is out of bounds of the tensor
+     */
+    public T getFlat(int index) {
+        return members.get(index);
+    }
+
+    /**
+     * Gets the row-major index of the given indices, the inverse of getDimensionIndices
+     * @param indices the indices to get the row-major index for
+     * @return the row-major index of the indices
+     * @throws IllegalArgumentException if the indices are out of bounds of the tensor, or if the number of indices are not equal to the Tensor's dimensions
+     */
+    public int getFlatIndex(int ... indices) {
+        return getMemberIndex(indices);
+    }
+
     /**
      * Gets the index in the underlying data structure from the given indices
      * @param indices the indices to get the index for
@@ -0,0 +1,14 @@
+/**
+ * A TileStateListener is told about every change to the TileState of a
+ * Tile on a board, so that indexes over the board can be kept up to date
+ * without scanning it (see {@link PackedBoard#addListener}).
+ */
+public interface TileStateListener {
+    /**
+     * Called after the TileState of a Tile changes
+     * @param index the row-major index of the Tile
+     * @param previous the TileState before the change
+     * @param current the TileState after the change
+     */
+    void tileStateChanged(int index, TileState previous, TileState current);
+}
@@ -0,0 +1,183 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A ZeroRegionIndex labels every region of connected zero-neighbor Tiles on
+ * a board once its bombs are placed, and stores the Tiles that uncovering
+ * the region reveals (the region plus the number Tiles bordering it).
+ * Uncovering a zero Tile is then a write over a precomputed list, with no
+ * searching through neighbors.
+ * <p>
+ * Regions are found with a union-find pass over row-major indices, and
+ * their members are stored in compressed sparse row form: the members of
+ * region r are members[regionOffsets[r]] up to members[regionOffsets[r+1]].
+ * A number Tile bordering several regions is stored once in each.
+ */
+public class ZeroRegionIndex {
+    /** region of each Tile, or -1 if the Tile is not a zero-neighbor non-bomb Tile */
+    private final int[] regionOf;
+    private final int[] regionOffsets;
+    private final int[] members;
+    private final long buildNanos;
+
+    private ZeroRegionIndex(int[] regionOf, int[] regionOffsets, int[] members, long buildNanos) {
+        this.regionOf = regionOf;
+        this.regionOffsets = regionOffsets;
+        this.members = members;
+        this.buildNanos = buildNanos;
+    }
+
+    /**
+     * Builds the index for a board whose bombs and neighbor counts are final
+     * @param board the board to index
+     * @return the index
+     */
+    public static ZeroRegionIndex build(Tensor<Tile> board) {
+        long start = System.nanoTime();
+        int[] dimensions = board.getDimensions();
+        int size = board.getDimensionTotal();
+
+        boolean[] zero = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            Tile tile = board.getFlat(i);
+            zero[i] = !tile.isBomb && tile.numNeighbors == 0;
+        }
+
+        int[] parent = new int[size];
+        for (int i = 0; i < size; i++) {
+            parent[i] = i;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!zero[i]) {
+                continue;
+            }
+            for (int neighbor : nDMinesweeper.getFlatNeighbors(i, dimensions)) {
+                if (neighbor < i && zero[neighbor]) {
+                    union(parent, i, neighbor);
+                }
+            }
+        }
+
+        int[] regionOf = new int[size];
+        int numRegions = 0;
+        for (int i = 0; i < size; i++) {
+            if (zero[i] && find(parent, i) == i) {
+                regionOf[i] = numRegions++;
+            }
+        }
+        int[] zeroOffsets = new int[numRegions + 1];
+        for (int i = 0; i < size; i++) {
+            if (zero[i]) {
+                regionOf[i] = regionOf[find(parent, i)];
+                zeroOffsets[regionOf[i] + 1]++;
+            } else {
+                regionOf[i] = -1;
+            }
+        }
+        for (int r = 0; r < numRegions; r++) {
+            zeroOffsets[r + 1] += zeroOffsets[r];
+        }
+        int[] zeroCells = new int[zeroOffsets[numRegions]];
+        int[] fill = Arrays.copyOf(zeroOffsets, numRegions);
+        for (int i = 0; i < size; i++) {
+            if (zero[i]) {
+                zeroCells[fill[regionOf[i]]++] = i;
+            }
+        }
+
+        // lastRegion marks border Tiles already added to the current region
+        int[] lastRegion = parent;
+        Arrays.fill(lastRegion, -1);
+        int[] regionOffsets = new int[numRegions + 1];
+        int[] members = new int[zeroCells.length];
+        int count = 0;
+        for (int r = 0; r < numRegions; r++) {
+            regionOffsets[r] = count;
+            for (int z = zeroOffsets[r]; z < zeroOffsets[r + 1]; z++) {
+                int cell = zeroCells[z];
+                if (count == members.length) {
+                    members = Arrays.copyOf(members, members.length * 2);
+                }
+                members[count++] = cell;
+                for (int neighbor : nDMinesweeper.getFlatNeighbors(cell, dimensions)) {
+                    if (!zero[neighbor] && lastRegion[neighbor] != r) {
+                        lastRegion[neighbor] = r;
+                        if (count == members.length) {
+                            members = Arrays.copyOf(members, members.length * 2);
+                        }
+                        members[count++] = neighbor;
+                    }
+                }
+            }
+        }
+        regionOffsets[numRegions] = count;
+
+        return new ZeroRegionIndex(regionOf, regionOffsets, Arrays.copyOf(members, count), System.nanoTime() - start);
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int first, int second) {
+        int firstRoot = find(parent, first);
+        int secondRoot = find(parent, second);
+        if (firstRoot < secondRoot) {
+            parent[secondRoot] = firstRoot;
+        } else if (secondRoot < firstRoot) {
+            parent[firstRoot] = secondRoot;
+        }
+    }
+
+    /**
+     * Uncovers every Tile revealed by uncovering the given zero-neighbor Tile
+     * @param board the board the index was built for
+     * @param index the row-major index of a zero-neighbor non-bomb Tile
+     * @return the row-major indices of the Tiles whose state was changed
+     * @throws IllegalArgumentException if the Tile is not in a zero region
+     */
+    public List<Integer> uncover(Tensor<Tile> board, int index) {
+        int region = regionOf[index];
+        if (region < 0) {
+            throw new IllegalArgumentException("Tile " + index + " is not in a zero region");
+        }
+        List<Integer> changed = new ArrayList<>();
+        for (int m = regionOffsets[region]; m < regionOffsets[region + 1]; m++) {
+            Tile tile = board.getFlat(members[m]);
+            if (tile.tileState != TileState.UNCOVERED) {
+                tile.tileState = TileState.UNCOVERED;
+                changed.add(members[m]);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Gets the number of zero regions on the board
+     * @return the number of regions
+     */
+    public int getRegionCount() {
+        return regionOffsets.length - 1;
+    }
+
+    /**
+     * Gets the time taken to build the index
+     * @return the build time in nanoseconds
+     */
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+
+    /**
+     * Gets the approximate number of bytes held by the index
+     * @return the size of the index arrays in bytes
+     */
+    public long getMemoryBytes() {
+        return 4L * (regionOf.length + regionOffsets.length + members.length) + 3 * 16;
+    }
+}
@@ -1,12 +1,26 @@
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Scanner;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.TreeSet;
 import java.util.stream.IntStream;
 
 public class nDMinesweeper {
+    /** maximum number of neighborhood patterns the hint solver caches */
+    static final int PATTERN_CACHE_CAPACITY = 1 << 16;
+    /** command-line flag to precompute the zero regions of the board (see ZeroRegionIndex) */
+    static final String ZERO_INDEX_FLAG = "--zero-index";
+    /** boards with more Tiles than this are drawn as a density map instead of Tile by Tile */
+    static final int OVERVIEW_THRESHOLD = 4096;
+    /** maximum width of the density map in characters */
+    static final int OVERVIEW_WIDTH = 64;
+    /** maximum height of the density map in lines */
+    static final int OVERVIEW_HEIGHT = 32;
+
     public static void main(String[] args) {
         Scanner sc = new Scanner(System.in);
 
@@ -53,20 +67,56 @@ public class nDMinesweeper {
         IntStream.range(0, board.getDimensionTotal()).forEach(e -> shuffledTileIndices.add(e));
         Collections.shuffle(shuffledTileIndices);
 
-        shuffledTileIndices.subList(0, bombs)
-                            .stream()
-                            .map(i -> board.getDimensionIndices(i))
-                            .map(i -> {
-                                board.get(i).isBomb = true; 
-                                return getNeighbors(i, dimensions);
-                            }).forEach(s -> s.forEach(i -> board.get(i).numNeighbors++));
+        if (dimensions.length <= BoardScan.MAX_BOX_SUM_DIMENSIONS) {
+            byte[] bombTiles = new byte[board.getDimensionTotal()];
+            shuffledTileIndices.subList(0, bombs).forEach(i -> bombTiles[i] = 1);
+            byte[] boxSums = BoardScan.boxSums(bombTiles, dimensions);
+            for (int i = 0; i < bombTiles.length; i++) {
+                Tile tile = board.getFlat(i);
+                tile.isBomb = bombTiles[i] == 1;
+                tile.numNeighbors = (boxSums[i] & 0xFF) - bombTiles[i];
+            }
+        } else {
+            shuffledTileIndices.subList(0, bombs)
+                                .stream()
+                                .map(i -> board.getDimensionIndices(i))
+                                .map(i -> {
+                                    board.get(i).isBomb = true; 
+                                    return getNeighbors(i, dimensions);
+                                }).forEach(s -> s.forEach(i -> board.get(i).numNeighbors++));
+        }
+        PackedBoard packed = PackedBoard.of(board);
+        FrontierIndex frontier = new FrontierIndex(board);
+        packed.addListener(frontier);
+        SummaryPyramid pyramid = new SummaryPyramid(board);
+        packed.addListener(pyramid);
+
+        ZeroRegionIndex zeroRegions = null;
+        if (Arrays.asList(args).contains(ZERO_INDEX_FLAG)) {
+            zeroRegions = ZeroRegionIndex.build(board);
+            System.out.println("Zero region index: " + zeroRegions.getRegionCount() + " regions, "
+                + zeroRegions.getMemoryBytes() + " bytes, built in " + zeroRegions.getBuildNanos() / 1000 + " us");
+        }
+
+        showBoard(board, pyramid);
 
-        printBoard(board);
+        SnapshotHistory history = new SnapshotHistory(BoardSnapshot.of(board));
+        LocalSolver solver = dimensions.length <= NeighborhoodPattern.MAX_DIMENSIONS
+            ? new LocalSolver(dimensions.length, PATTERN_CACHE_CAPACITY)
+            : null;
 
         while(true) {
             System.out.println("Please Enter Selection Square"); 
             String input = sc.nextLine();
             String[] inputs = input.split(" ");
+            if (handleHistoryCommand(inputs, history, board, packed, pyramid)
+                || handleHintCommand(inputs, solver, board, packed, frontier)
+                || handleOverviewCommand(inputs, board, pyramid)) {
+                if (isGameOver(packed) && !offerHistory(sc, history, board, packed, pyramid)) {
+                    break;
+                }
+                continue;
+            }
             boolean flagCommand = false;
             int[] indices = new int[dimensions.length];
             if (inputs.length == dimensions.length + 1) {
@@ -99,6 +149,7 @@ public class nDMinesweeper {
                 continue;
             }
             Tile chosen = board.get(indices);
+            TileState previousState = chosen.tileState;
             switch(chosen.tileState) {
                 case COVERED:
                     if (flagCommand)
@@ -114,39 +165,323 @@ public class nDMinesweeper {
                     break;
             }
 
+            ArrayList<Integer> changed = new ArrayList<>();
+            if (chosen.tileState != previousState) {
+                changed.add(board.getFlatIndex(indices));
+            }
             if (!chosen.isBomb && chosen.tileState == TileState.UNCOVERED && chosen.numNeighbors == 0) {
-                Set<Tile> fillUncover = new HashSet<>();
-                fillUncover.add(chosen);
-                Set<Tile> checked = new HashSet<>();
-                while (checked.size() < fillUncover.size()) {
-                    fillUncover.stream()
-                        .filter(t -> !checked.contains(t))
-                        .filter(t -> {
-                            t.tileState = TileState.UNCOVERED;
-                            checked.add(t);
-                            return t.numNeighbors == 0;
-                        }).map(t -> getNeighbors(board.firstIndicesOf(t), dimensions))
-                        .forEach(s -> 
-                            fillUncover.addAll(
-                                s.stream().map(i -> board.get(i)).collect(Collectors.toSet())
-                            )
-                        );
-                }
+                if (zeroRegions != null)
+                    changed.addAll(zeroRegions.uncover(board, board.getFlatIndex(indices)));
+                else
+                    changed.addAll(uncoverZeroRegion(board, indices));
+            }
+            if (!changed.isEmpty()) {
+                history.record(history.current().with(changed, board));
+                packed.update(board, changed);
             }
 
-            
-            if (chosen.tileState == TileState.UNCOVERED && chosen.isBomb) {
-                System.out.println("BOOM! You lose!");
+
+            if (showResult(packed) && !offerHistory(sc, history, board, packed, pyramid)) {
                 break;
             }
+        }
 
-            if (checkWin(board)) {
-                System.out.println("You won!");
+        sc.close();
+    }
+
+    /**
+     * Uncovers the region of zero-neighbor Tiles containing the given (zero-neighbor) Tile, along with every Tile bordering it
+     * @param board the board to uncover the region on
+     * @param start the indices of a Tile in the region
+     * @return the row-major indices of the Tiles whose state was changed
+     */
+    public static List<Integer> uncoverZeroRegion(Tensor<Tile> board, int[] start) {
+        int[] dimensions = board.getDimensions();
+        List<Integer> changed = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        ArrayDeque<int[]> toVisit = new ArrayDeque<>();
+        seen.add(board.getFlatIndex(start));
+        toVisit.add(start);
+        while (!toVisit.isEmpty()) {
+            int[] indices = toVisit.poll();
+            Tile tile = board.get(indices);
+            if (tile.tileState != TileState.UNCOVERED) {
+                tile.tileState = TileState.UNCOVERED;
+                changed.add(board.getFlatIndex(indices));
+            }
+            if (tile.numNeighbors == 0) {
+                for (int[] neighbor : getNeighbors(indices, dimensions)) {
+                    if (seen.add(board.getFlatIndex(neighbor))) {
+                        toVisit.add(neighbor);
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Handles the undo ("U"), redo ("R"), branch ("B" to list, "B n" to switch) and memory ("M") commands
+     * @param inputs the words of the command
+     * @param history the history of the game
+     * @param board the board to restore when moving through the history
+     * @param packed the mirror of the board to keep up to date
+     * @param pyramid the summary of the board, to draw large boards with
+     * @return true if the input was a history command (whether or not it succeeded), and false otherwise
+     */
+    public static boolean handleHistoryCommand(String[] inputs, SnapshotHistory history, Tensor<Tile> board, PackedBoard packed, SummaryPyramid pyramid) {
+        List<Integer> changed;
+        switch (inputs[0]) {
+            case "U":
+                if (inputs.length != 1) {
+                    return false;
+                }
+                changed = history.undo(board);
+                if (changed == null) {
+                    System.out.println("Nothing to undo");
+                    return true;
+                }
+                break;
+            case "R":
+                if (inputs.length != 1) {
+                    return false;
+                }
+                changed = history.redo(board);
+                if (changed == null) {
+                    System.out.println("Nothing to redo");
+                    return true;
+                }
                 break;
+            case "B":
+                if (inputs.length == 1) {
+                    System.out.println("Branches from this move: " + history.getBranchCount());
+                    return true;
+                }
+                if (inputs.length != 2) {
+                    return false;
+                }
+                try {
+                    changed = history.switchBranch(Integer.parseInt(inputs[1]), board);
+                } catch (NumberFormatException e) {
+                    System.out.println("Bad input (branch not an integer)");
+                    return true;
+                } catch (IllegalArgumentException e) {
+                    System.out.println(e.getMessage());
+                    return true;
+                }
+                break;
+            case "M":
+                if (inputs.length != 1) {
+                    return false;
+                }
+                for (String line : history.memoryReport()) {
+                    System.out.println(line);
+                }
+                return true;
+            default:
+                return false;
+        }
+        packed.update(board, changed);
+        showBoard(board, pyramid);
+        showResult(packed);
+        return true;
+    }
+
+    /**
+     * Checks if the game is over, either won or lost
+     * @param packed the mirror of the board
+     * @return true if the game is over, and false otherwise
+     */
+    public static boolean isGameOver(PackedBoard packed) {
+        return packed.isLost() || packed.isWon();
+    }
+
+    /**
+     * Prints the result of the game if it is over
+     * @param packed the mirror of the board
+     * @return true if the game is over, and false otherwise
+     */
+    public static boolean showResult(PackedBoard packed) {
+        if (packed.isLost()) {
+            System.out.println("BOOM! You lose!");
+            return true;
+        }
+        if (packed.isWon()) {
+            System.out.println("You won!");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Once the game is over, lets the player move through the history (undo, redo or switch branch) instead of quitting
+     * @param sc the scanner to read commands from
+     * @param history the history of the game
+     * @param board the board to restore when moving through the history
+     * @param packed the mirror of the board to keep up to date
+     * @param pyramid the summary of the board, to draw large boards with
+     * @return true if the player went back to a position where the game is not over, and false if they chose to quit
+     */
+    public static boolean offerHistory(Scanner sc, SnapshotHistory history, Tensor<Tile> board, PackedBoard packed, SummaryPyramid pyramid) {
+        while (true) {
+            System.out.println("Enter U to undo, B n to switch branch, or anything else to quit");
+            String[] inputs = sc.nextLine().split(" ");
+            if (!handleHistoryCommand(inputs, history, board, packed, pyramid)) {
+                return false;
+            }
+            if (!isGameOver(packed)) {
+                return true;
             }
         }
+    }
 
-        sc.close();
+    /**
+     * Handles the overview ("Z" to draw the density map) and region count ("Q" followed by the lowest then highest indices of a box) commands
+     * @param inputs the words of the command
+     * @param board the board to describe
+     * @param pyramid the summary of the board
+     * @return true if the input was an overview command (whether or not it succeeded), and false otherwise
+     */
+    public static boolean handleOverviewCommand(String[] inputs, Tensor<Tile> board, SummaryPyramid pyramid) {
+        int[] dimensions = board.getDimensions();
+        if (inputs[0].equals("Z") && inputs.length == 1) {
+            for (String line : pyramid.densityMap(OVERVIEW_WIDTH, OVERVIEW_HEIGHT)) {
+                System.out.println(line);
+            }
+            return true;
+        }
+        if (!inputs[0].equals("Q") || inputs.length != 2 * dimensions.length + 1) {
+            return false;
+        }
+        int[] from = new int[dimensions.length];
+        int[] last = new int[dimensions.length];
+        int[] to = new int[dimensions.length];
+        try {
+            for (int i = 0; i < dimensions.length; i++) {
+                from[i] = Integer.parseInt(inputs[i + 1]);
+                last[i] = Integer.parseInt(inputs[dimensions.length + i + 1]);
+                to[i] = last[i] + 1;
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Bad input (not integers)");
+            return true;
+        }
+        if (!board.inBounds(from) || !board.inBounds(last)) {
+            System.out.println("Bad input (indicies out of bounds)");
+            return true;
+        }
+        for (int i = 0; i < dimensions.length; i++) {
+            if (from[i] > last[i]) {
+                System.out.println("Bad input (lowest indices above highest indices)");
+                return true;
+            }
+        }
+        System.out.println("Covered: " + pyramid.count(TileState.COVERED, from, to)
+            + ", flagged: " + pyramid.count(TileState.FLAGGED, from, to)
+            + ", uncovered: " + pyramid.count(TileState.UNCOVERED, from, to));
+        return true;
+    }
+
+    /**
+     * Handles the hint ("H" followed by the indices of an uncovered number, or "H" alone for the whole frontier) and statistics ("S") commands
+     * @param inputs the words of the command
+     * @param solver the solver to give hints with, or null if the board has too many dimensions for it
+     * @param board the board to give hints for
+     * @param packed the mirror of the board, to count its Tiles with
+     * @param frontier the frontier of the board
+     * @return true if the input was a hint command (whether or not it succeeded), and false otherwise
+     */
+    public static boolean handleHintCommand(String[] inputs, LocalSolver solver, Tensor<Tile> board, PackedBoard packed, FrontierIndex frontier) {
+        int[] dimensions = board.getDimensions();
+        if (inputs[0].equals("S") && inputs.length == 1) {
+            System.out.println("Covered: " + packed.countCovered() + ", flagged: " + packed.countFlagged());
+            System.out.println("Frontier: " + frontier.getNumberFrontierSize() + " numbers, " + frontier.getCoveredFrontierSize() + " covered");
+            if (solver == null) {
+                System.out.println("Hints are not supported for more than " + NeighborhoodPattern.MAX_DIMENSIONS + " dimensions");
+                return true;
+            }
+            PatternCache<double[]> cache = solver.getCache();
+            System.out.println("Pattern cache: " + cache.size() + " patterns, " + cache.getMemoryBytes() + " bytes");
+            System.out.println("Hits: " + cache.getHits() + ", misses: " + cache.getMisses()
+                + ", hit rate: " + Math.round(cache.getHitRate() * 100) + "%, evictions: " + cache.getEvictions());
+            return true;
+        }
+        if (!inputs[0].equals("H") || (inputs.length != dimensions.length + 1 && inputs.length != 1)) {
+            return false;
+        }
+        if (solver == null) {
+            System.out.println("Hints are not supported for more than " + NeighborhoodPattern.MAX_DIMENSIONS + " dimensions");
+            return true;
+        }
+        if (inputs.length == 1 && dimensions.length > 0) {
+            printFrontierHints(solver, board, frontier);
+            return true;
+        }
+        int[] indices = new int[dimensions.length];
+        try {
+            for (int i = 0; i < dimensions.length; i++) {
+                indices[i] = Integer.parseInt(inputs[i + 1]);
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Bad input (not integers)");
+            return true;
+        }
+        if (!board.inBounds(indices)) {
+            System.out.println("Bad input (indicies out of bounds)");
+            return true;
+        }
+        double[] probabilities = solver.solve(board, indices);
+        if (probabilities == null) {
+            System.out.println("No hint (not an uncovered number, or its neighbors contradict it)");
+            return true;
+        }
+        NeighborhoodPattern pattern = solver.getPattern();
+        for (int p = 0; p < probabilities.length; p++) {
+            if (probabilities[p] < 0) {
+                continue;
+            }
+            int[] offsets = pattern.getOffsets(p);
+            int[] neighbor = new int[dimensions.length];
+            for (int i = 0; i < dimensions.length; i++) {
+                neighbor[i] = indices[i] + offsets[i];
+            }
+            String verdict = probabilities[p] == 0 ? " (safe)" : probabilities[p] == 1 ? " (bomb)" : "";
+            System.out.println(printInts(neighbor) + ": " + Math.round(probabilities[p] * 100) + "%" + verdict);
+        }
+        return true;
+    }
+
+    /**
+     * Prints every covered Tile on the frontier that the solver finds to be certainly safe or certainly a bomb
+     * @param solver the solver to give hints with
+     * @param board the board to give hints for
+     * @param frontier the frontier of the board
+     */
+    public static void printFrontierHints(LocalSolver solver, Tensor<Tile> board, FrontierIndex frontier) {
+        NeighborhoodPattern pattern = solver.getPattern();
+        Set<Integer> safe = new TreeSet<>();
+        Set<Integer> bombs = new TreeSet<>();
+        for (int index : frontier.getNumberFrontier()) {
+            int[] indices = board.getDimensionIndices(index);
+            double[] probabilities = solver.solve(board, indices);
+            if (probabilities == null) {
+                continue;
+            }
+            for (int p = 0; p < probabilities.length; p++) {
+                if (probabilities[p] != 0 && probabilities[p] != 1) {
+                    continue;
+                }
+                int[] offsets = pattern.getOffsets(p);
+                int[] neighbor = new int[indices.length];
+                for (int i = 0; i < indices.length; i++) {
+                    neighbor[i] = indices[i] + offsets[i];
+                }
+                (probabilities[p] == 0 ? safe : bombs).add(board.getFlatIndex(neighbor));
+            }
+        }
+        System.out.println("Frontier: " + frontier.getNumberFrontierSize() + " numbers, " + frontier.getCoveredFrontierSize() + " covered");
+        safe.forEach(i -> System.out.println(printInts(board.getDimensionIndices(i)) + ": safe"));
+        bombs.forEach(i -> System.out.println(printInts(board.getDimensionIndices(i)) + ": bomb"));
     }
 
     /**
@@ -203,6 +538,48 @@ public class nDMinesweeper {
         return neighbors;
     }
 
+    /**
+     * Gets the row-major indices of all the neighbors (indices whose every dimensions differs by at most 1) of a given row-major index.
+     * A Tile is not a neighbor to itself
+     * @param index the row-major index of the Tile
+     * @param dimensions the dimensions that the index is a part of
+     * @return the row-major indices of its neighbors within the dimensions, in increasing order
+     */
+    public static int[] getFlatNeighbors(int index, int[] dimensions) {
+        int[] indices = new int[dimensions.length];
+        int remainder = index;
+        for (int i = dimensions.length - 1; i >= 0; i--) {
+            indices[i] = remainder % dimensions[i];
+            remainder /= dimensions[i];
+        }
+        int maxNeighbors = 1;
+        for (int i = 0; i < dimensions.length; i++) {
+            maxNeighbors *= 3;
+        }
+        int[] result = new int[maxNeighbors - 1];
+        int count = 0;
+        for (int offset = 0; offset < maxNeighbors; offset++) {
+            if (offset == maxNeighbors / 2) { // 1111...111 base 3, the Tile itself
+                continue;
+            }
+            int current = offset;
+            int flat = 0;
+            int multiplier = 1;
+            boolean inBounds = true;
+            for (int i = dimensions.length - 1; i >= 0; i--) {
+                int neighbor = indices[i] + current % 3 - 1;
+                current /= 3;
+                inBounds &= neighbor >= 0 && neighbor < dimensions[i];
+                flat += neighbor * multiplier;
+                multiplier *= dimensions[i];
+            }
+            if (inBounds) {
+                result[count++] = flat;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
     /**
      * Checks if a given set of indices is in bounds (in the range [0,dimension[i]) for each index) of a certain set of dimensions.
      * Does not check that indices matches length with dimensions
@@ -253,6 +630,21 @@ public class nDMinesweeper {
         return total;
     }
 
+    /**
+     * Draw the board, or its density map if it has more than OVERVIEW_THRESHOLD Tiles
+     * @param board the board to draw
+     * @param pyramid the summary of the board
+     */
+    public static void showBoard(Tensor<Tile> board, SummaryPyramid pyramid) {
+        if (board.getDimensionTotal() <= OVERVIEW_THRESHOLD) {
+            printBoard(board);
+            return;
+        }
+        for (String line : pyramid.densityMap(OVERVIEW_WIDTH, OVERVIEW_HEIGHT)) {
+            System.out.println(line);
+        }
+    }
+
     /**
      * Draw the board
      * @param board the board to draw
@@ -457,14 +849,4 @@ public class nDMinesweeper {
         }
         return combined;
     }
-
-    /**
-     * Checks if a board is won (all bombs are covered or flagged, and all non-bomb tiles are uncovered)
-     * @param board the board to check
-     * @return true if the game is won, and false otherwise
-     */
-    public static boolean checkWin(Tensor<Tile> board) {
-        return board.stream().allMatch(t -> (t.isBomb && (t.tileState == TileState.COVERED || t.tileState == TileState.FLAGGED)) 
-            || (!t.isBomb && t.tileState == TileState.UNCOVERED));
-    }
 }